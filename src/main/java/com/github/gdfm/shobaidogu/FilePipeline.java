@@ -0,0 +1,229 @@
+package com.github.gdfm.shobaidogu;
+
+/*
+ * #%L
+ * shobai-dogu
+ * %%
+ * Copyright (C) 2012 - 2013 gdfm
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static com.google.common.base.Preconditions.*;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads many files line by line and feeds the lines to a processor, using one virtual thread per file. The number of
+ * files open at the same time is bounded, and readers block when the processors fall behind. Progress is reported
+ * through a {@link ProgressTracker} for each file whose lines have all been processed.
+ */
+public class FilePipeline {
+
+  /**
+   * Callback invoked for each line read. Implementations are called concurrently and must be thread safe.
+   */
+  public interface LineProcessor {
+    void process(File file, String line) throws Exception;
+  }
+
+  private static final Line END = new Line(null, null, null);
+  private static final long POLL_MILLIS = 100;
+
+  private final int maxOpenFiles;
+  private final int queueCapacity;
+  private final int numProcessors;
+  private final long reportPeriod;
+
+  /**
+   * Builds a pipeline with one processor per available core.
+   *
+   * @param maxOpenFiles
+   *          the maximum number of files open at the same time.
+   * @param queueCapacity
+   *          the maximum number of lines read but not yet processed.
+   * @param reportPeriod
+   *          how many files to complete between progress reports.
+   */
+  public FilePipeline(int maxOpenFiles, int queueCapacity, long reportPeriod) {
+    this(maxOpenFiles, queueCapacity, Runtime.getRuntime().availableProcessors(), reportPeriod);
+  }
+
+  /**
+   * Builds a pipeline.
+   *
+   * @param maxOpenFiles
+   *          the maximum number of files open at the same time.
+   * @param queueCapacity
+   *          the maximum number of lines read but not yet processed.
+   * @param numProcessors
+   *          the number of threads consuming lines.
+   * @param reportPeriod
+   *          how many files to complete between progress reports.
+   */
+  public FilePipeline(int maxOpenFiles, int queueCapacity, int numProcessors, long reportPeriod) {
+    checkArgument(maxOpenFiles > 0, "Maximum number of open files should be positive: " + maxOpenFiles);
+    checkArgument(queueCapacity > 0, "Queue capacity should be positive: " + queueCapacity);
+    checkArgument(numProcessors > 0, "Number of processors should be positive: " + numProcessors);
+    checkArgument(reportPeriod > 0, "Report period should be positive: " + reportPeriod);
+    this.maxOpenFiles = maxOpenFiles;
+    this.queueCapacity = queueCapacity;
+    this.numProcessors = numProcessors;
+    this.reportPeriod = reportPeriod;
+  }
+
+  /**
+   * Runs the pipeline on the given files and waits for all lines to be processed. The first failure in either stage
+   * stops the whole pipeline and is rethrown.
+   *
+   * @param files
+   *          the input files.
+   * @param processor
+   *          the line processor.
+   * @return the number of lines processed.
+   * @throws IOException
+   *           if a file cannot be read. Checked exceptions thrown by the processor are wrapped in a RuntimeException,
+   *           unchecked ones are rethrown as they are.
+   * @throws InterruptedException
+   *           if the calling thread is interrupted while waiting.
+   */
+  public long run(Collection<File> files, final LineProcessor processor) throws IOException, InterruptedException {
+    checkNotNull(files);
+    checkNotNull(processor);
+    if (files.isEmpty())
+      return 0;
+
+    final BlockingQueue<Line> queue = new ArrayBlockingQueue<Line>(queueCapacity);
+    final Semaphore openFiles = new Semaphore(maxOpenFiles);
+    final ProgressTracker tracker = new ProgressTracker(files.size(), reportPeriod);
+    final AtomicInteger pendingFiles = new AtomicInteger(files.size());
+    final AtomicLong processedLines = new AtomicLong();
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    try {
+      for (int i = 0; i < numProcessors; i++) {
+        executor.execute(guard(executor, failure, () -> {
+          // poll and check for failures, as a processor that swallows the interrupt would block forever in take()
+          while (failure.get() == null) {
+            final Line line = queue.poll(POLL_MILLIS, MILLISECONDS);
+            if (line == null)
+              continue;
+            if (line == END)
+              break;
+            try {
+              processor.process(line.file, line.text);
+            } catch (RuntimeException e) {
+              throw e;
+            } catch (Exception e) { // keep IOException for the readers
+              throw new RuntimeException(e);
+            }
+            processedLines.incrementAndGet();
+            if (line.pending.decrementAndGet() == 0)
+              tracker.progress();
+          }
+        }));
+      }
+      for (final File file : files) {
+        if (failure.get() != null)
+          break;
+        try {
+          executor.execute(guard(executor, failure, () -> {
+            openFiles.acquire();
+            // one count per queued line plus one for the reader, the file is done when all are released
+            final AtomicLong pending = new AtomicLong(1);
+            try (LineIterable lines = new LineIterable(file)) {
+              for (String text : lines) {
+                pending.incrementAndGet();
+                queue.put(new Line(file, text, pending));
+              }
+            } catch (RuntimeException e) {
+              if (e.getClass() == RuntimeException.class && e.getCause() instanceof IOException)
+                throw (IOException) e.getCause(); // unwrap from LineIterable
+              throw e;
+            } finally {
+              openFiles.release();
+            }
+            if (pending.decrementAndGet() == 0)
+              tracker.progress();
+            if (pendingFiles.decrementAndGet() == 0) // last reader tells processors to stop
+              for (int i = 0; i < numProcessors; i++)
+                queue.put(END);
+          }));
+        } catch (RejectedExecutionException e) {
+          break; // a task failed and shut down the executor, its failure is rethrown below
+        }
+      }
+    } finally {
+      executor.close(); // waits for all tasks, or interrupts them if we are interrupted
+    }
+
+    if (Thread.interrupted())
+      throw new InterruptedException();
+    Throwable t = failure.get();
+    if (t instanceof IOException)
+      throw (IOException) t;
+    if (t instanceof RuntimeException)
+      throw (RuntimeException) t;
+    if (t instanceof Error)
+      throw (Error) t;
+    if (t != null)
+      throw new RuntimeException(t);
+    return processedLines.get();
+  }
+
+  private interface Task {
+    void run() throws Exception;
+  }
+
+  /**
+   * Wraps a task so that its failure is recorded and stops every other task in the executor.
+   */
+  private static Runnable guard(final ExecutorService executor, final AtomicReference<Throwable> failure,
+      final Task task) {
+    return () -> {
+      try {
+        task.run();
+      } catch (Throwable t) {
+        // keep only the first failure, later ones are mostly interruptions caused by shutdownNow()
+        if (failure.compareAndSet(null, t))
+          executor.shutdownNow();
+      }
+    };
+  }
+
+  private static final class Line {
+    final File file;
+    final String text;
+    final AtomicLong pending;
+
+    Line(File file, String text, AtomicLong pending) {
+      this.file = file;
+      this.text = text;
+      this.pending = pending;
+    }
+  }
+}
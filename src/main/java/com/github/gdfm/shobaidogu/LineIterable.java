@@ -79,9 +79,4 @@ public class LineIterable implements Iterable<String>, Closeable {
   public void close() throws IOException {
     reader.close();
   }
-
-  @Override
-  protected void finalize() throws Throwable {
-    reader.close();
-  }
 }
@@ -50,18 +50,18 @@ public class ProgressTracker {
   }
 
   /**
-   * Logs the progress.
+   * Logs the progress. Safe to call from multiple threads, which will share the same count.
    */
-  public void progress() {
+  public synchronized void progress() {
     count++;
     if (count % period == 0 && LOG.isInfoEnabled()) {
       final double percent = 100 * (count / (double) totalIterations);
       final long tock = System.currentTimeMillis();
-      final long timeInterval = tock - tick;
+      final long timeInterval = Math.max(tock - tick, 1);
       final long linesPerSec = (count - prevCount) * 1000 / timeInterval;
       tick = tock;
       prevCount = count;
-      final int etaSeconds = (int) ((totalIterations - count) / linesPerSec);
+      final int etaSeconds = (int) ((totalIterations - count) / Math.max(linesPerSec, 1));
       final long hours = SECONDS.toHours(etaSeconds);
       final long minutes = SECONDS.toMinutes(etaSeconds - HOURS.toSeconds(hours));
       final long seconds = SECONDS.toSeconds(etaSeconds - MINUTES.toSeconds(minutes));
@@ -36,6 +36,8 @@ import com.google.common.collect.Sets;
 import com.google.common.math.DoubleMath;
 
 public final class StatsUtils {
+  private static final int MAX_CACHED_DISCOUNTS = 4096;
+  private static volatile double[] discounts = { 1.0 };
 
   /**
    * Computes the Jaccard overlap between two sets.
@@ -147,12 +149,56 @@ public final class StatsUtils {
   public static double[] computeDCG(double[] relevance) {
     checkNotNull(relevance);
     checkArgument(relevance.length > 0);
-    double[] dcg = Arrays.copyOf(relevance, relevance.length);
+    final double[] discount = discounts(relevance.length);
+    final double[] dcg = new double[relevance.length];
+    for (int i = 0; i < dcg.length; i++) // independent iterations, vectorized by the JIT
+      dcg[i] = relevance[i] * discount[i];
     for (int i = 1; i < dcg.length; i++)
-      dcg[i] = dcg[i - 1] + dcg[i] / DoubleMath.log2(i + 1);
+      dcg[i] += dcg[i - 1];
     return dcg;
   }
 
+  /**
+   * Compute Discount Cumulative Gain for a relevance vector.
+   * 
+   * @param relevance
+   *          the vector or relevance values.
+   * @return DCG.
+   */
+  public static double[] computeDCG(float[] relevance) {
+    checkNotNull(relevance);
+    checkArgument(relevance.length > 0);
+    final double[] discount = discounts(relevance.length);
+    final double[] dcg = new double[relevance.length];
+    for (int i = 0; i < dcg.length; i++)
+      dcg[i] = relevance[i] * discount[i];
+    for (int i = 1; i < dcg.length; i++)
+      dcg[i] += dcg[i - 1];
+    return dcg;
+  }
+
+  /**
+   * Returns the DCG discounts 1 / log2(i + 1) for at least the first length positions. The first position is not
+   * discounted. Tables up to MAX_CACHED_DISCOUNTS positions are shared, longer ones are computed for the caller only.
+   * 
+   * @param length
+   *          the minimum number of discounts.
+   * @return the discount table.
+   */
+  private static double[] discounts(int length) {
+    double[] d = discounts;
+    if (d.length >= length)
+      return d;
+    final boolean cached = length <= MAX_CACHED_DISCOUNTS;
+    final int size = cached ? Math.min(Math.max(length, 2 * d.length), MAX_CACHED_DISCOUNTS) : length;
+    final double[] grown = Arrays.copyOf(d, size);
+    for (int i = d.length; i < size; i++)
+      grown[i] = 1.0 / DoubleMath.log2(i + 1);
+    if (cached) // concurrent callers at worst compute the same table twice
+      discounts = grown;
+    return grown;
+  }
+
   /**
    * Compute a proxy to Ideal Discount Cumulative Gain for a relevance vector. This method simply sorts the entries by
    * decreasing relevance before computing a normal DCG.
@@ -293,4 +339,189 @@ public final class StatsUtils {
     double m2 = magnitude(largeVector);
     return dotProd / (m1 * m2);
   }
+
+  /**
+   * Inner (dot) product between two dense vectors of the same length.
+   * 
+   * @param v1
+   * @param v2
+   * @return
+   */
+  public static double dotProduct(double[] v1, double[] v2) {
+    checkNotNull(v1);
+    checkNotNull(v2);
+    checkArgument(v1.length == v2.length, "Vectors should have the same length: " + v1.length + " != " + v2.length);
+    // independent accumulators break the dependency chain of the sum and let the JIT unroll and vectorize
+    double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+    int i = 0;
+    for (; i < v1.length - 3; i += 4) {
+      s0 += v1[i] * v2[i];
+      s1 += v1[i + 1] * v2[i + 1];
+      s2 += v1[i + 2] * v2[i + 2];
+      s3 += v1[i + 3] * v2[i + 3];
+    }
+    for (; i < v1.length; i++)
+      s0 += v1[i] * v2[i];
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  /**
+   * Inner (dot) product between two dense vectors of the same length. The sum is accumulated in double precision.
+   * 
+   * @param v1
+   * @param v2
+   * @return
+   */
+  public static double dotProduct(float[] v1, float[] v2) {
+    checkNotNull(v1);
+    checkNotNull(v2);
+    checkArgument(v1.length == v2.length, "Vectors should have the same length: " + v1.length + " != " + v2.length);
+    double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+    int i = 0;
+    for (; i < v1.length - 3; i += 4) {
+      s0 += (double) v1[i] * v2[i];
+      s1 += (double) v1[i + 1] * v2[i + 1];
+      s2 += (double) v1[i + 2] * v2[i + 2];
+      s3 += (double) v1[i + 3] * v2[i + 3];
+    }
+    for (; i < v1.length; i++)
+      s0 += (double) v1[i] * v2[i];
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  /**
+   * Compute the magnitude of a dense vector.
+   * 
+   * @param vector
+   * @return
+   */
+  public static double magnitude(double[] vector) {
+    return Math.sqrt(dotProduct(vector, vector));
+  }
+
+  /**
+   * Compute the magnitude of a dense vector.
+   * 
+   * @param vector
+   * @return
+   */
+  public static double magnitude(float[] vector) {
+    return Math.sqrt(dotProduct(vector, vector));
+  }
+
+  /**
+   * Cosine similarity between two dense vectors of the same length.
+   * 
+   * @param v1
+   * @param v2
+   * @return
+   */
+  public static double cosineSimilarity(double[] v1, double[] v2) {
+    checkNotNull(v1);
+    checkNotNull(v2);
+    checkArgument(v1.length == v2.length, "Vectors should have the same length: " + v1.length + " != " + v2.length);
+    // single pass over both vectors, two accumulators per sum
+    double dot0 = 0.0, dot1 = 0.0, sq10 = 0.0, sq11 = 0.0, sq20 = 0.0, sq21 = 0.0;
+    int i = 0;
+    for (; i < v1.length - 1; i += 2) {
+      final double a0 = v1[i], a1 = v1[i + 1], b0 = v2[i], b1 = v2[i + 1];
+      dot0 += a0 * b0;
+      dot1 += a1 * b1;
+      sq10 += a0 * a0;
+      sq11 += a1 * a1;
+      sq20 += b0 * b0;
+      sq21 += b1 * b1;
+    }
+    if (i < v1.length) {
+      final double a = v1[i], b = v2[i];
+      dot0 += a * b;
+      sq10 += a * a;
+      sq20 += b * b;
+    }
+    return (dot0 + dot1) / (Math.sqrt(sq10 + sq11) * Math.sqrt(sq20 + sq21));
+  }
+
+  /**
+   * Cosine similarity between two dense vectors of the same length.
+   * 
+   * @param v1
+   * @param v2
+   * @return
+   */
+  public static double cosineSimilarity(float[] v1, float[] v2) {
+    checkNotNull(v1);
+    checkNotNull(v2);
+    checkArgument(v1.length == v2.length, "Vectors should have the same length: " + v1.length + " != " + v2.length);
+    // single pass over both vectors, two accumulators per sum
+    double dot0 = 0.0, dot1 = 0.0, sq10 = 0.0, sq11 = 0.0, sq20 = 0.0, sq21 = 0.0;
+    int i = 0;
+    for (; i < v1.length - 1; i += 2) {
+      final double a0 = v1[i], a1 = v1[i + 1], b0 = v2[i], b1 = v2[i + 1];
+      dot0 += a0 * b0;
+      dot1 += a1 * b1;
+      sq10 += a0 * a0;
+      sq11 += a1 * a1;
+      sq20 += b0 * b0;
+      sq21 += b1 * b1;
+    }
+    if (i < v1.length) {
+      final double a = v1[i], b = v2[i];
+      dot0 += a * b;
+      sq10 += a * a;
+      sq20 += b * b;
+    }
+    return (dot0 + dot1) / (Math.sqrt(sq10 + sq11) * Math.sqrt(sq20 + sq21));
+  }
+
+  /**
+   * Normalize a dense vector in place with l2 norm.
+   * 
+   * @param vector
+   */
+  public static void l2NormalizeInPlace(double[] vector) {
+    if (vector == null || vector.length == 0)
+      throw new IllegalArgumentException("Cannot normalize an empy vector: " + Arrays.toString(vector));
+    final double scale = 1.0 / magnitude(vector);
+    for (int i = 0; i < vector.length; i++)
+      vector[i] *= scale;
+  }
+
+  /**
+   * Normalize a dense vector in place with l2 norm.
+   * 
+   * @param vector
+   */
+  public static void l2NormalizeInPlace(float[] vector) {
+    if (vector == null || vector.length == 0)
+      throw new IllegalArgumentException("Cannot normalize an empy vector: " + Arrays.toString(vector));
+    final double scale = 1.0 / magnitude(vector);
+    for (int i = 0; i < vector.length; i++)
+      vector[i] = (float) (vector[i] * scale);
+  }
+
+  /**
+   * Normalize a dense vector with l2 norm.
+   * 
+   * @param vector
+   */
+  public static double[] l2Normalize(double[] vector) {
+    if (vector == null || vector.length == 0)
+      throw new IllegalArgumentException("Cannot normalize an empy vector: " + Arrays.toString(vector));
+    double[] result = Arrays.copyOf(vector, vector.length);
+    l2NormalizeInPlace(result);
+    return result;
+  }
+
+  /**
+   * Normalize a dense vector with l2 norm.
+   * 
+   * @param vector
+   */
+  public static float[] l2Normalize(float[] vector) {
+    if (vector == null || vector.length == 0)
+      throw new IllegalArgumentException("Cannot normalize an empy vector: " + Arrays.toString(vector));
+    float[] result = Arrays.copyOf(vector, vector.length);
+    l2NormalizeInPlace(result);
+    return result;
+  }
 }
\ No newline at end of file
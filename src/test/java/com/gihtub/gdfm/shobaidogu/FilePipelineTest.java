@@ -0,0 +1,161 @@
+package com.gihtub.gdfm.shobaidogu;
+
+/*
+ * #%L
+ * shobai-dogu
+ * %%
+ * Copyright (C) 2012 - 2013 gdfm
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.gdfm.shobaidogu.FilePipeline;
+
+public class FilePipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<File> createFiles(int numFiles, int numLines) throws IOException {
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < numFiles; i++) {
+            File file = folder.newFile("file" + i + ".txt");
+            try (FileWriter writer = new FileWriter(file)) {
+                for (int j = 0; j < numLines; j++)
+                    writer.write(i + "-" + j + "\n");
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        List<File> files = createFiles(50, 100);
+        final ConcurrentHashMap<String, File> seen = new ConcurrentHashMap<String, File>();
+        FilePipeline pipeline = new FilePipeline(4, 16, 3, 10);
+        long count = pipeline.run(files, (file, line) -> assertNull(seen.put(line, file)));
+        assertEquals(5000, count);
+        assertEquals(5000, seen.size());
+        assertEquals(files.get(7), seen.get("7-42"));
+    }
+
+    @Test
+    public void testRunEmpty() throws Exception {
+        assertEquals(0, new FilePipeline(1, 1, 1).run(new ArrayList<File>(), (file, line) -> fail()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingFile() throws Exception {
+        List<File> files = createFiles(10, 10);
+        files.add(new File(folder.getRoot(), "missing.txt"));
+        new FilePipeline(2, 4, 100).run(files, (file, line) -> {
+        });
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProcessorFailure() throws Exception {
+        List<File> files = createFiles(10, 1000);
+        new FilePipeline(2, 4, 100).run(files, (file, line) -> {
+            throw new IllegalStateException(line);
+        });
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProcessorFailureManyFiles() throws Exception {
+        List<File> files = createFiles(3000, 1);
+        new FilePipeline(2, 4, 100).run(files, (file, line) -> {
+            throw new IllegalStateException(line);
+        });
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testMissingFirstFileManyFiles() throws Exception {
+        List<File> files = createFiles(3000, 1);
+        files.add(0, new File(folder.getRoot(), "missing.txt"));
+        new FilePipeline(2, 4, 100).run(files, (file, line) -> {
+        });
+    }
+
+    @Test
+    public void testProcessorExceptionsNotUnwrapped() throws Exception {
+        List<File> files = createFiles(2, 10);
+        final IOException cause = new IOException();
+        try {
+            new FilePipeline(2, 4, 100).run(files, (file, line) -> {
+                throw new IllegalStateException(cause);
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(cause, e.getCause());
+        }
+        try {
+            new FilePipeline(2, 4, 100).run(files, (file, line) -> {
+                throw cause;
+            });
+            fail();
+        } catch (RuntimeException e) {
+            assertSame(cause, e.getCause());
+        }
+    }
+
+    @Test
+    public void testBoundedReadAhead() throws Exception {
+        // while the only processor is stuck on the first line, the two open readers can only fill the queue, so the
+        // other files are never opened and deleting them must make the pipeline fail
+        final List<File> files = createFiles(6, 100);
+        final AtomicBoolean first = new AtomicBoolean(true);
+        try {
+            new FilePipeline(2, 2, 1, 100).run(files, (file, line) -> {
+                if (first.getAndSet(false)) {
+                    Thread.sleep(200);
+                    for (File other : files)
+                        if (!other.equals(file))
+                            other.delete();
+                }
+            });
+            fail();
+        } catch (FileNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test(timeout = 10000, expected = FileNotFoundException.class)
+    public void testProcessorSwallowsInterrupt() throws Exception {
+        List<File> files = createFiles(1, 100);
+        files.add(new File(folder.getRoot(), "missing.txt"));
+        new FilePipeline(2, 4, 1, 100).run(files, (file, line) -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                // carry on, as some library code does
+            }
+        });
+    }
+}
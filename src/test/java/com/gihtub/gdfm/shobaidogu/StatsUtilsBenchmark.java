@@ -0,0 +1,211 @@
+package com.gihtub.gdfm.shobaidogu;
+
+/*
+ * #%L
+ * shobai-dogu
+ * %%
+ * Copyright (C) 2012 - 2013 gdfm
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.github.gdfm.shobaidogu.StatsUtils;
+import com.google.common.math.DoubleMath;
+
+/**
+ * Compares the dense kernels in {@link StatsUtils} with plain scalar loops. Run the main method with the test classpath,
+ * it is not part of the unit tests.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsUtilsBenchmark {
+
+    @Param({ "128", "768", "4096" })
+    public int dimension;
+
+    private double[] v1;
+    private double[] v2;
+    private float[] f1;
+    private float[] f2;
+    private double[] relevance;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        v1 = new double[dimension];
+        v2 = new double[dimension];
+        f1 = new float[dimension];
+        f2 = new float[dimension];
+        relevance = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            v1[i] = random.nextGaussian();
+            v2[i] = random.nextGaussian();
+            f1[i] = (float) v1[i];
+            f2[i] = (float) v2[i];
+            relevance[i] = random.nextInt(5);
+        }
+    }
+
+    @Benchmark
+    public double dotProductScalar() {
+        double sum = 0.0;
+        for (int i = 0; i < v1.length; i++)
+            sum += v1[i] * v2[i];
+        return sum;
+    }
+
+    @Benchmark
+    public double dotProductDense() {
+        return StatsUtils.dotProduct(v1, v2);
+    }
+
+    @Benchmark
+    public double dotProductScalarFloat() {
+        double sum = 0.0;
+        for (int i = 0; i < f1.length; i++)
+            sum += (double) f1[i] * f2[i];
+        return sum;
+    }
+
+    @Benchmark
+    public double dotProductDenseFloat() {
+        return StatsUtils.dotProduct(f1, f2);
+    }
+
+    @Benchmark
+    public double magnitudeScalar() {
+        double sum = 0.0;
+        for (int i = 0; i < v1.length; i++)
+            sum += Math.pow(v1[i], 2);
+        return Math.sqrt(sum);
+    }
+
+    @Benchmark
+    public double magnitudeDense() {
+        return StatsUtils.magnitude(v1);
+    }
+
+    @Benchmark
+    public double magnitudeScalarFloat() {
+        double sum = 0.0;
+        for (int i = 0; i < f1.length; i++)
+            sum += Math.pow(f1[i], 2);
+        return Math.sqrt(sum);
+    }
+
+    @Benchmark
+    public double magnitudeDenseFloat() {
+        return StatsUtils.magnitude(f1);
+    }
+
+    @Benchmark
+    public double[] l2NormalizeScalar() {
+        double[] result = new double[v1.length];
+        double normalizer = magnitudeScalar();
+        for (int i = 0; i < v1.length; i++)
+            result[i] = v1[i] / normalizer;
+        return result;
+    }
+
+    @Benchmark
+    public double[] l2NormalizeDense() {
+        return StatsUtils.l2Normalize(v1);
+    }
+
+    @Benchmark
+    public float[] l2NormalizeScalarFloat() {
+        float[] result = new float[f1.length];
+        double normalizer = magnitudeScalarFloat();
+        for (int i = 0; i < f1.length; i++)
+            result[i] = (float) (f1[i] / normalizer);
+        return result;
+    }
+
+    @Benchmark
+    public float[] l2NormalizeDenseFloat() {
+        return StatsUtils.l2Normalize(f1);
+    }
+
+    @Benchmark
+    public double cosineSimilarityScalar() {
+        double dot = 0.0, m1 = 0.0, m2 = 0.0;
+        for (int i = 0; i < v1.length; i++) {
+            dot += v1[i] * v2[i];
+            m1 += Math.pow(v1[i], 2);
+            m2 += Math.pow(v2[i], 2);
+        }
+        return dot / (Math.sqrt(m1) * Math.sqrt(m2));
+    }
+
+    @Benchmark
+    public double cosineSimilarityDense() {
+        return StatsUtils.cosineSimilarity(v1, v2);
+    }
+
+    @Benchmark
+    public double cosineSimilarityScalarFloat() {
+        double dot = 0.0, m1 = 0.0, m2 = 0.0;
+        for (int i = 0; i < f1.length; i++) {
+            dot += (double) f1[i] * f2[i];
+            m1 += Math.pow(f1[i], 2);
+            m2 += Math.pow(f2[i], 2);
+        }
+        return dot / (Math.sqrt(m1) * Math.sqrt(m2));
+    }
+
+    @Benchmark
+    public double cosineSimilarityDenseFloat() {
+        return StatsUtils.cosineSimilarity(f1, f2);
+    }
+
+    @Benchmark
+    public double[] computeDCGScalar() {
+        double[] dcg = Arrays.copyOf(relevance, relevance.length);
+        for (int i = 1; i < dcg.length; i++)
+            dcg[i] = dcg[i - 1] + dcg[i] / DoubleMath.log2(i + 1);
+        return dcg;
+    }
+
+    @Benchmark
+    public double[] computeDCGDense() {
+        return StatsUtils.computeDCG(relevance);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StatsUtilsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
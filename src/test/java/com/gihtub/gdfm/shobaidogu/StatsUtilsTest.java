@@ -22,8 +22,10 @@ package com.gihtub.gdfm.shobaidogu;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -80,4 +82,115 @@ public class StatsUtilsTest {
         assertTrue(map.containsKey("three"));
         assertTrue(map.containsValue("aaa"));
     }
+
+    @Test
+    public void testDenseDotProduct() {
+        assertEquals(32.0, StatsUtils.dotProduct(new double[] { 1, 2, 3 }, new double[] { 4, 5, 6 }), 1e-12);
+        assertEquals(32.0, StatsUtils.dotProduct(new float[] { 1, 2, 3 }, new float[] { 4, 5, 6 }), 1e-12);
+        double[] v = new double[101];
+        for (int i = 0; i < v.length; i++)
+            v[i] = i;
+        assertEquals(338350.0, StatsUtils.dotProduct(v, v), 1e-9);
+    }
+
+    @Test
+    public void testDenseFloatLong() {
+        // not a multiple of 4, so both the unrolled loop and the tail are exercised
+        Random random = new Random(42);
+        float[] f1 = new float[1027];
+        float[] f2 = new float[1027];
+        double dot = 0, m1 = 0, m2 = 0;
+        for (int i = 0; i < f1.length; i++) {
+            f1[i] = (float) random.nextGaussian();
+            f2[i] = (float) random.nextGaussian();
+            dot += (double) f1[i] * f2[i];
+            m1 += (double) f1[i] * f1[i];
+            m2 += (double) f2[i] * f2[i];
+        }
+        assertEquals(dot, StatsUtils.dotProduct(f1, f2), 1e-4);
+        assertEquals(Math.sqrt(m1), StatsUtils.magnitude(f1), 1e-4);
+        assertEquals(dot / Math.sqrt(m1 * m2), StatsUtils.cosineSimilarity(f1, f2), 1e-6);
+        float[] ones = new float[1027];
+        Arrays.fill(ones, 1.0f);
+        assertEquals(1027.0, StatsUtils.dotProduct(ones, ones), 0);
+    }
+
+    @Test
+    public void testDenseFloatRange() {
+        // squares of these values under- or overflow a float, but not a double, whatever the length
+        for (float unit : new float[] { 1e-40f, 1e20f }) {
+            float[] v = { 3 * unit, 4 * unit, 0, 0, 0 };
+            double expected = (double) v[0] * v[0] + (double) v[1] * v[1];
+            assertEquals(expected, StatsUtils.dotProduct(v, v), 1e-12 * expected);
+            assertEquals(Math.sqrt(expected), StatsUtils.magnitude(v), 1e-12 * Math.sqrt(expected));
+            float[] n = StatsUtils.l2Normalize(v);
+            assertEquals(0.6f, n[0], 1e-6);
+            assertEquals(0.8f, n[1], 1e-6);
+            assertEquals(0.0f, n[4], 0);
+        }
+    }
+
+    @Test
+    public void testDenseCosineTails() {
+        // even length for double, odd length for float
+        double[] v1 = { 1, 2, 3, 4 };
+        double[] v2 = { 4, -3, 2, 1 };
+        assertEquals(8.0 / 30.0, StatsUtils.cosineSimilarity(v1, v2), 1e-12);
+        float[] f1 = { 1, 2, 3, 4, 5 };
+        float[] f2 = { 5, -4, 3, 2, 1 };
+        assertEquals(19.0 / 55.0, StatsUtils.cosineSimilarity(f1, f2), 1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDenseDotProductLength() {
+        StatsUtils.dotProduct(new double[] { 1, 2 }, new double[] { 1, 2, 3 });
+    }
+
+    @Test
+    public void testDenseMagnitudeAndCosine() {
+        assertEquals(5.0, StatsUtils.magnitude(new double[] { 3, 4 }), 1e-12);
+        assertEquals(5.0, StatsUtils.magnitude(new float[] { 3, 4 }), 1e-12);
+        assertEquals(1.0, StatsUtils.cosineSimilarity(new double[] { 1, 2, 3 }, new double[] { 2, 4, 6 }), 1e-12);
+        assertEquals(0.0, StatsUtils.cosineSimilarity(new float[] { 1, 0 }, new float[] { 0, 1 }), 1e-12);
+    }
+
+    @Test
+    public void testDenseL2Normalize() {
+        double[] v = { 3, 4 };
+        assertArrayEquals(new double[] { 0.6, 0.8 }, StatsUtils.l2Normalize(v), 1e-12);
+        assertArrayEquals(new double[] { 3, 4 }, v, 0);
+        StatsUtils.l2NormalizeInPlace(v);
+        assertArrayEquals(new double[] { 0.6, 0.8 }, v, 1e-12);
+        float[] f = StatsUtils.l2Normalize(new float[] { 3, 4 });
+        assertEquals(0.6f, f[0], 1e-6);
+        assertEquals(0.8f, f[1], 1e-6);
+        // 1 / magnitude overflows a float
+        f = StatsUtils.l2Normalize(new float[] { 3e-40f, 4e-40f, 0, 0 });
+        assertEquals(0.6f, f[0], 1e-6);
+        assertEquals(0.8f, f[1], 1e-6);
+    }
+
+    @Test
+    public void testComputeDCG() {
+        double[] relevance = { 3, 2, 3, 0, 1, 2 };
+        double[] dcg = StatsUtils.computeDCG(relevance);
+        double expected = 0;
+        for (int i = 0; i < relevance.length; i++) {
+            expected += i == 0 ? relevance[i] : relevance[i] / (Math.log(i + 1) / Math.log(2));
+            assertEquals(expected, dcg[i], 1e-12);
+        }
+        assertArrayEquals(dcg, StatsUtils.computeDCG(new float[] { 3, 2, 3, 0, 1, 2 }), 1e-12);
+        // longer vectors grow the shared discount table, or go past it
+        for (int length : new int[] { 1000, 10000, 3000 }) {
+            double[] ones = new double[length];
+            Arrays.fill(ones, 1.0);
+            double[] longDcg = StatsUtils.computeDCG(ones);
+            assertEquals(length, longDcg.length);
+            expected = 1.0;
+            for (int i = 1; i < length; i++)
+                expected += 1.0 / (Math.log(i + 1) / Math.log(2));
+            assertEquals(expected, longDcg[length - 1], 1e-9);
+        }
+        assertEquals(3.0, StatsUtils.computeIDCG(new double[] { 0, 3 })[1], 1e-12);
+    }
 }